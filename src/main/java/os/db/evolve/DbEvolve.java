@@ -3,16 +3,24 @@ package os.db.evolve;
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.ref.SoftReference;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
@@ -22,14 +30,19 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -41,21 +54,37 @@ public class DbEvolve {
     static final Pattern FILE_VERSION_PATTERN = Pattern.compile("V(\\d+)__.*");
     static final Comparator<Path> VERSION_COMPARATOR = Comparator.comparingInt(DbEvolve::extractVersionFromFileName);
     static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([A-Za-z0-9-\\_]+)\\}");
-    private static final MessageDigest digest;
+    static final String SESSION_DIRECTIVE = "-- db-evolve:session ";
+    static final String RESET_DIRECTIVE = "-- db-evolve:reset ";
+    static final Pattern SET_PATTERN = Pattern.compile("SET\\s+(SESSION\\s+)?([\\w.]+)\\s*(=|\\s+TO\\s+).+", Pattern.CASE_INSENSITIVE);
+    static final Pattern ENABLE_PARALLEL_DML_PATTERN = Pattern.compile("ALTER\\s+SESSION\\s+ENABLE\\s+PARALLEL\\s+DML", Pattern.CASE_INSENSITIVE);
+    static final Map<String, Map<String, String>> PLACEHOLDER_PROFILES = Map.of(
+            "H2", Map.of("datetime", "TIMESTAMP", "clob", "CLOB", "blob", "BLOB"),
+            "PostgreSQL", Map.of("datetime", "TIMESTAMP", "clob", "TEXT", "blob", "BYTEA"),
+            "MySQL", Map.of("datetime", "DATETIME", "clob", "LONGTEXT", "blob", "LONGBLOB"),
+            "Oracle", Map.of("datetime", "DATE", "clob", "CLOB", "blob", "BLOB"));
+    static final long WATCH_QUIET_PERIOD_MILLIS = 100;
+    static final long WATCH_RETRY_MILLIS = 1000;
+    static final int SCRIPT_CACHE_SIZE = 16;
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(DbEvolve::sha256);
 
     static {
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new MigrationException("Unable to MessageDigest.getInstance of SHA-256", e);
-        }
+        digest.get(); // fail fast if SHA-256 is not available
     }
 
     private final DataSource dataSource;
     private final String classpathDirectory;
     private final Logger logger;
+    private final Map<String, SoftReference<Script>> scriptsByHash = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Script>> eldest) {
+            return size() > SCRIPT_CACHE_SIZE;
+        }
+    });
 
     private FileSystem fileSystem;
+    private int prefetchedFiles;
+    private boolean checkpoints;
 
     public DbEvolve(DataSource dataSource) {
         this(dataSource, DEFAULT_CLASSPATH_DIRECTORY, Logger.NO_OP);
@@ -69,6 +98,36 @@ public class DbEvolve {
         createTablesIfNotExist();
     }
 
+    /**
+     * Enables pipelined migration: a background thread reads, hashes, parses and renders up to
+     * {@code prefetchedFiles} upcoming scripts while the current one is executed. Scripts are still applied one
+     * after another on a single connection, each within its own transaction.
+     */
+    public DbEvolve withPipelining(int prefetchedFiles) {
+        if (prefetchedFiles < 1) {
+            throw new IllegalArgumentException("prefetchedFiles must be at least 1");
+        }
+        this.prefetchedFiles = prefetchedFiles;
+        return this;
+    }
+
+    /**
+     * Enables statement-level checkpoints for databases where DDL commits implicitly, like MySQL and Oracle.
+     * Statements then run in auto-commit mode and each completed statement is recorded in the table
+     * {@code DB_EVOLVE_CHECKPOINT}. A failed script is resumed at its first incomplete statement on the next run,
+     * provided the completed statements are unchanged.
+     */
+    public DbEvolve withCheckpoints() {
+        try (Connection connection = dataSource.getConnection()) {
+            execute(connection, "CREATE TABLE DB_EVOLVE_CHECKPOINT (NAME VARCHAR(255) NOT NULL, STATEMENT_INDEX INTEGER NOT NULL, HASH VARCHAR(64) NOT NULL, TIMESTAMP TIMESTAMP, PRIMARY KEY (NAME, STATEMENT_INDEX))");
+        } catch (SQLException throwables) {
+            // ignore => assumption table already exist. If not migration will fail anyway.
+            logger.log(Logger.Level.DEBUG, throwables.getMessage());
+        }
+        this.checkpoints = true;
+        return this;
+    }
+
     public boolean migrate() throws IOException, URISyntaxException, SQLException {
         return migrate(Collections.emptyMap());
     }
@@ -85,22 +144,14 @@ public class DbEvolve {
             try {
                 SortedSet<Path> files = readFilenamesFromClasspath(classpathDirectory);
                 Map<String, String> sqlScriptsByName = selectAllFromDb(connection);
+                Map<String, String> placeholders = withProfilePlaceholders(connection, placeholderValues);
 
-                for (Path sqlFile : files) {
-                    byte[] content = Files.readAllBytes(sqlFile);
-                    String hash = hash(content);
-
-                    String fileName = sqlFile.getFileName().toString();
-                    String knownHash = sqlScriptsByName.get(fileName);
-
-                    if (knownHash != null) {
-                        if (!hash.equals(knownHash)) {
-                            throw new MigrationException(String.format("Content of %s has changed. Expected hash %s but was %s", fileName, knownHash, hash));
-                        }
-                        continue;
+                if (prefetchedFiles > 0) {
+                    migratePipelined(connection, files, sqlScriptsByName, placeholders);
+                } else {
+                    for (Path sqlFile : files) {
+                        apply(connection, prepare(sqlFile, sqlScriptsByName, placeholders, false), placeholders);
                     }
-
-                    migrateSqlFile(connection, fileName, hash, content, placeholderValues);
                 }
             } finally {
                 unlock(connection);
@@ -114,6 +165,124 @@ public class DbEvolve {
         return true;
     }
 
+    private void migratePipelined(Connection connection, SortedSet<Path> files, Map<String, String> sqlScriptsByName, Map<String, String> placeholderValues) throws IOException, SQLException {
+        BlockingQueue<PreparedFile> queue = new ArrayBlockingQueue<>(prefetchedFiles);
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (Path sqlFile : files) {
+                    try {
+                        queue.put(prepare(sqlFile, sqlScriptsByName, placeholderValues, true));
+                    } catch (IOException | RuntimeException | Error e) {
+                        queue.put(PreparedFile.failed(e)); // rethrown when the executing connection reaches this file
+                        return;
+                    }
+                }
+                queue.put(PreparedFile.END);
+            } catch (InterruptedException e) {
+                // migration was aborted
+            }
+        }, "db-evolve-pipeline");
+        producer.setDaemon(true);
+        producer.start();
+
+        try {
+            PreparedFile preparedFile;
+            while ((preparedFile = queue.take()) != PreparedFile.END) {
+                apply(connection, preparedFile, placeholderValues);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for the next migration script", e);
+        } finally {
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads and hashes the script. Pending scripts are compiled as well and, if {@code render} is set, their
+     * statements are rendered up front.
+     */
+    PreparedFile prepare(Path sqlFile, Map<String, String> sqlScriptsByName, Map<String, String> placeholderValues, boolean render) throws IOException {
+        byte[] content = Files.readAllBytes(sqlFile);
+        String hash = hash(content);
+
+        String fileName = sqlFile.getFileName().toString();
+        String knownHash = sqlScriptsByName.get(fileName);
+
+        if (knownHash != null) {
+            return new PreparedFile(fileName, hash, knownHash, null, null, null);
+        }
+
+        Script script = compile(fileName, hash, content);
+        if (!render) {
+            return new PreparedFile(fileName, hash, null, script, null, null);
+        }
+
+        List<String> statements = new ArrayList<>(script.statements.size());
+        try {
+            for (Template template : script.statements) {
+                statements.add(template.render(placeholderValues));
+            }
+        } catch (MigrationException e) {
+            // the failing statement is rendered again on execution, so the migration fails at the same statement
+        }
+        return new PreparedFile(fileName, hash, null, script, statements, null);
+    }
+
+    private void apply(Connection connection, PreparedFile preparedFile, Map<String, String> placeholderValues) throws IOException, SQLException {
+        preparedFile.rethrowFailure();
+
+        if (preparedFile.knownHash != null) {
+            verifyUnchanged(preparedFile);
+            return;
+        }
+
+        migrateSqlFile(connection, preparedFile, placeholderValues);
+    }
+
+    private static void verifyUnchanged(PreparedFile preparedFile) {
+        if (!preparedFile.hash.equals(preparedFile.knownHash)) {
+            throw new MigrationException(String.format("Content of %s has changed. Expected hash %s but was %s", preparedFile.fileName, preparedFile.knownHash, preparedFile.hash));
+        }
+    }
+
+    /**
+     * Development mode: watches the migration directory on the classpath, which must be a directory on the file
+     * system. See {@link #watch(Path, Map)}.
+     */
+    public Watcher watch(Map<String, String> placeholderValues) throws IOException, URISyntaxException, SQLException {
+        URL url = getResource(classpathDirectory);
+        if (url == null || !url.getProtocol().equals("file")) {
+            throw new MigrationException(String.format("Directory %s not found on file system", classpathDirectory));
+        }
+        return watch(Paths.get(url.toURI()), placeholderValues);
+    }
+
+    /**
+     * Development mode: watches the given directory and applies newly added scripts as soon as they appear. Changes
+     * to already applied scripts are reported via the logger right away. The applied state is read once, so call
+     * this after {@link #migrate(Map)}. Close the returned watcher to stop watching.
+     */
+    public Watcher watch(Path directory, Map<String, String> placeholderValues) throws IOException, SQLException {
+        Map<String, String> sqlScriptsByName;
+        try (Connection connection = dataSource.getConnection()) {
+            sqlScriptsByName = selectAllFromDb(connection);
+        }
+
+        WatchService watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Watcher watcher = new Watcher(watchService, sqlScriptsByName, placeholderValues);
+        watcher.thread.start();
+        return watcher;
+    }
+
     public static String hash(Path sqlFile) throws IOException {
         byte[] content = Files.readAllBytes(sqlFile);
         return hash(content);
@@ -140,16 +309,107 @@ public class DbEvolve {
         return count == 1;
     }
 
-    private void migrateSqlFile(Connection connection, String fileName, String hash, byte[] content, Map<String, String> placeholderValues) throws IOException, SQLException {
+    private void migrateSqlFile(Connection connection, PreparedFile preparedFile, Map<String, String> placeholderValues) throws SQLException {
+        List<SessionDirective> sessionDirectives = preparedFile.script.sessionDirectives;
+        int applied = 0;
+
+        try {
+            for (SessionDirective sessionDirective : sessionDirectives) {
+                executeMigration(connection, preparedFile.fileName, sessionDirective.setting, sessionDirective.setting.render(placeholderValues));
+                applied++;
+            }
+
+            if (checkpoints) {
+                migrateSqlFileWithCheckpoints(connection, preparedFile, placeholderValues);
+            } else {
+                migrateSqlFileInTransaction(connection, preparedFile, placeholderValues);
+            }
+        } catch (java.lang.Exception ex) {
+            resetSession(connection, preparedFile.fileName, sessionDirectives.subList(0, applied), placeholderValues, ex);
+            throw ex;
+        }
+        resetSession(connection, preparedFile.fileName, sessionDirectives, placeholderValues, null);
+    }
+
+    /**
+     * Resets the applied session directives in reverse order. If a reset fails after a successful script, the
+     * script is already committed and recorded in DB_EVOLVE, but migrate still fails: the connection goes back to
+     * the pool with a session setting that leaked out of the script, which must not go unnoticed.
+     */
+    private void resetSession(Connection connection, String fileName, List<SessionDirective> applied, Map<String, String> placeholderValues, Exception failure) {
+        SQLException resetFailure = null;
+        int resetFailureLineNumber = -1;
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            Template reset = applied.get(i).reset;
+            String statement = reset.render(placeholderValues);
+            logger.log(Logger.Level.INFO, String.format("Resetting session after %s:\n%s", fileName, statement));
+            try {
+                execute(connection, statement);
+            } catch (SQLException e) {
+                if (failure != null) {
+                    failure.addSuppressed(e);
+                } else if (resetFailure == null) {
+                    resetFailure = e;
+                    resetFailureLineNumber = reset.lineNumber;
+                } else {
+                    resetFailure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (resetFailure != null) {
+            throw invalidStatement(fileName, resetFailureLineNumber, resetFailure);
+        }
+    }
+
+    private void migrateSqlFileInTransaction(Connection connection, PreparedFile preparedFile, Map<String, String> placeholderValues) throws SQLException {
+        List<Template> statements = preparedFile.script.statements;
         connection.setAutoCommit(false);
 
-        try (ByteArrayInputStream contentAsStream = new ByteArrayInputStream(content);
-             InputStreamReader inReader = new InputStreamReader(contentAsStream);
-             BufferedReader reader = new BufferedReader(inReader)) {
+        try {
+            for (int i = 0; i < statements.size(); i++) {
+                executeMigration(connection, preparedFile.fileName, statements.get(i), preparedFile.statement(i, placeholderValues));
+            }
 
-            parseAndExecuteStatements(fileName, reader, stmt -> executeMigration(connection, fileName, stmt, placeholderValues));
+            executeUpdate(connection, "INSERT INTO DB_EVOLVE (NAME, HASH, TIMESTAMP) VALUES (?, ?, ?)", preparedFile.fileName, preparedFile.hash, Timestamp.valueOf(LocalDateTime.now()));
+        } catch (java.lang.Exception ex) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+            throw ex;
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
 
-            executeUpdate(connection, "INSERT INTO DB_EVOLVE (NAME, HASH, TIMESTAMP) VALUES (?, ?, ?)", fileName, hash, Timestamp.valueOf(LocalDateTime.now()));
+    private void migrateSqlFileWithCheckpoints(Connection connection, PreparedFile preparedFile, Map<String, String> placeholderValues) throws SQLException {
+        String fileName = preparedFile.fileName;
+        List<Template> statements = preparedFile.script.statements;
+        List<String> completedHashes = selectCheckpoints(connection, fileName);
+        if (completedHashes.size() > statements.size()) {
+            throw new MigrationException(String.format("%s has %d completed statements, but now only consists of %d", fileName, completedHashes.size(), statements.size()));
+        }
+
+        for (int i = 0; i < statements.size(); i++) {
+            String statement = preparedFile.statement(i, placeholderValues);
+            String statementHash = hash(statement.getBytes(StandardCharsets.UTF_8));
+
+            if (i < completedHashes.size()) {
+                if (!statementHash.equals(completedHashes.get(i))) {
+                    throw new MigrationException(String.format("Completed statement %d of %s has changed. Expected hash %s but was %s", i + 1, fileName, completedHashes.get(i), statementHash));
+                }
+                logger.log(Logger.Level.INFO, String.format("Skipping completed statement %d of %s", i + 1, fileName));
+                continue;
+            }
+
+            executeMigration(connection, fileName, statements.get(i), statement);
+            executeUpdate(connection, "INSERT INTO DB_EVOLVE_CHECKPOINT (NAME, STATEMENT_INDEX, HASH, TIMESTAMP) VALUES (?, ?, ?, ?)", fileName, i, statementHash, Timestamp.valueOf(LocalDateTime.now()));
+        }
+
+        connection.setAutoCommit(false);
+
+        try {
+            executeUpdate(connection, "INSERT INTO DB_EVOLVE (NAME, HASH, TIMESTAMP) VALUES (?, ?, ?)", fileName, preparedFile.hash, Timestamp.valueOf(LocalDateTime.now()));
+            executeUpdate(connection, "DELETE FROM DB_EVOLVE_CHECKPOINT WHERE NAME = ?", fileName);
         } catch (java.lang.Exception ex) {
             connection.rollback();
             connection.setAutoCommit(true);
@@ -159,67 +419,173 @@ public class DbEvolve {
         connection.setAutoCommit(true);
     }
 
-    void parseAndExecuteStatements(String fileName, BufferedReader reader, StatementExecutor statementExecutor) throws IOException {
+    List<String> selectCheckpoints(Connection connection, String fileName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT HASH FROM DB_EVOLVE_CHECKPOINT WHERE NAME = ? ORDER BY STATEMENT_INDEX")) {
+            ps.setString(1, fileName);
+            ResultSet rs = ps.executeQuery();
+
+            List<String> result = new ArrayList<>();
+            while (rs.next()) {
+                result.add(rs.getString("HASH"));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Splits the script into statements and compiles each of them, as well as the session directives of its
+     * header, into a {@link Template}. The result is cached by content hash. The cache holds the last
+     * {@link #SCRIPT_CACHE_SIZE} scripts via soft references, so large scripts do not stay in memory for the life of
+     * a long running instance, e.g. while watching.
+     */
+    Script compile(String fileName, String hash, byte[] content) throws IOException {
+        SoftReference<Script> cached = scriptsByHash.get(hash);
+        Script cachedScript = cached != null ? cached.get() : null;
+        if (cachedScript != null) {
+            return cachedScript;
+        }
+
+        List<SessionDirective> sessionDirectives;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content)))) {
+            sessionDirectives = parseSessionDirectives(fileName, reader);
+        }
+
+        List<Template> templates = new ArrayList<>();
+        boolean complete;
+        try (ByteArrayInputStream contentAsStream = new ByteArrayInputStream(content);
+             InputStreamReader inReader = new InputStreamReader(contentAsStream);
+             BufferedReader reader = new BufferedReader(inReader)) {
+            complete = parseStatements(reader, (statement, lineNumber) -> templates.add(Template.compile(statement, lineNumber)));
+        }
+
+        Script script = new Script(templates, sessionDirectives, complete);
+        scriptsByHash.put(hash, new SoftReference<>(script));
+        return script;
+    }
+
+    /**
+     * Reads the session directives from the leading comment lines of a script. Each setting is reset after the
+     * script, either by the {@code reset} directive following it or by a reset derived from the setting.
+     */
+    List<SessionDirective> parseSessionDirectives(String fileName, BufferedReader reader) throws IOException {
+        List<SessionDirective> result = new ArrayList<>();
+        int lineNumber = 0;
+        String line;
+        String setting = null;
+        int settingLineNumber = -1;
+
+        while ((line = reader.readLine()) != null && (line.startsWith("--") || line.isBlank())) {
+            lineNumber++;
+
+            if (line.startsWith(RESET_DIRECTIVE)) {
+                if (setting == null) {
+                    throw new MigrationException(String.format("%s - Reset directive without session directive at line %d", fileName, lineNumber));
+                }
+                result.add(new SessionDirective(Template.compile(setting, settingLineNumber), Template.compile(directiveStatement(line, RESET_DIRECTIVE), lineNumber)));
+                setting = null;
+            } else if (line.startsWith(SESSION_DIRECTIVE)) {
+                if (setting != null) {
+                    result.add(new SessionDirective(Template.compile(setting, settingLineNumber), Template.compile(deriveReset(fileName, setting, settingLineNumber), settingLineNumber)));
+                }
+                setting = directiveStatement(line, SESSION_DIRECTIVE);
+                settingLineNumber = lineNumber;
+            }
+        }
+
+        if (setting != null) {
+            result.add(new SessionDirective(Template.compile(setting, settingLineNumber), Template.compile(deriveReset(fileName, setting, settingLineNumber), settingLineNumber)));
+        }
+        return result;
+    }
+
+    private static String directiveStatement(String line, String directive) {
+        String statement = line.substring(directive.length()).trim();
+        return statement.endsWith(";") ? statement.substring(0, statement.length() - 1).trim() : statement;
+    }
+
+    static String deriveReset(String fileName, String setting, int lineNumber) {
+        Matcher set = SET_PATTERN.matcher(setting);
+        if (set.matches()) {
+            return String.format("SET %s%s = DEFAULT", set.group(1) != null ? "SESSION " : "", set.group(2));
+        }
+
+        // parallel DML is the only Oracle session feature disabled by default, others like parallel DDL are enabled
+        if (ENABLE_PARALLEL_DML_PATTERN.matcher(setting).matches()) {
+            return "ALTER SESSION DISABLE PARALLEL DML";
+        }
+
+        throw new MigrationException(String.format("%s - No reset known for session directive at line %d, add a reset directive", fileName, lineNumber));
+    }
+
+    /**
+     * Passes each delimited statement to the consumer. Returns false if the script ends with an unterminated
+     * statement, which is dropped.
+     */
+    boolean parseStatements(BufferedReader reader, StatementConsumer statementConsumer) throws IOException {
         int lineNumber = 0;
         String line;
         StringBuilder statement = new StringBuilder();
         int statementStartLineNumber = -1;
         String delimiter = ";";
 
-        try {
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
 
-                if (line.startsWith("--") || line.isBlank()) { // skip single line comments and blank lines
-                    continue;
-                }
+            if (line.startsWith("--") || line.isBlank()) { // skip single line comments and blank lines
+                continue;
+            }
 
-                if (line.startsWith("DELIMITER ")) {
-                    delimiter = line.substring(10);
-                    continue;
-                }
+            if (line.startsWith("DELIMITER ")) {
+                delimiter = line.substring(10);
+                continue;
+            }
 
-                if (statementStartLineNumber == -1) {
-                    statementStartLineNumber = lineNumber;
-                }
+            if (statementStartLineNumber == -1) {
+                statementStartLineNumber = lineNumber;
+            }
 
-                statement.append(line).append("\n");
+            statement.append(line).append("\n");
 
-                if (line.endsWith(delimiter)) {
-                    int length = statement.length();
-                    statement.replace(length - delimiter.length() - 1, length, ""); // remove delimiter
-                    statementExecutor.execute(statement.toString());
+            if (line.endsWith(delimiter)) {
+                int length = statement.length();
+                statement.replace(length - delimiter.length() - 1, length, ""); // remove delimiter
+                statementConsumer.accept(statement.toString(), statementStartLineNumber);
 
-                    // reset
-                    statement.setLength(0);
-                    statementStartLineNumber = -1;
-                    delimiter = ";";
-                }
+                // reset
+                statement.setLength(0);
+                statementStartLineNumber = -1;
+                delimiter = ";";
             }
-        } catch (SQLException e) {
-            throw new MigrationException(String.format("%s - Invalid sql statement found at line %d", fileName, statementStartLineNumber), e);
         }
+
+        return statement.length() == 0;
     }
 
-    private void executeMigration(Connection connection, String fileName, String statement, Map<String, String> placeHolderValues) throws SQLException {
-        statement = replacePlaceholder(statement, placeHolderValues);
+    private void executeMigration(Connection connection, String fileName, Template template, String statement) {
         logger.log(Logger.Level.INFO, String.format("Executing migration %s:\n%s", fileName, statement));
-        execute(connection, statement);
+        try {
+            execute(connection, statement);
+        } catch (SQLException e) {
+            throw invalidStatement(fileName, template.lineNumber, e);
+        }
     }
 
-    String replacePlaceholder(String statement, Map<String, String> placeHolderValues) {
-        StringBuilder builder = new StringBuilder();
-        Matcher matcher = DbEvolve.PLACEHOLDER_PATTERN.matcher(statement);
-        while (matcher.find()) {
-            String placeholder = matcher.group(1);
-            String replacement = placeHolderValues.get(placeholder);
-            if (replacement == null) {
-                throw new MigrationException(String.format("Missing value for placeholder '%s'", placeholder));
-            }
-            matcher.appendReplacement(builder, replacement);
+    private static MigrationException invalidStatement(String fileName, int lineNumber, SQLException e) {
+        return new MigrationException(String.format("%s - Invalid sql statement found at line %d", fileName, lineNumber), e);
+    }
+
+    /**
+     * Returns the built-in placeholder values of the connected database vendor, overridden by the given values.
+     */
+    Map<String, String> withProfilePlaceholders(Connection connection, Map<String, String> placeholderValues) throws SQLException {
+        Map<String, String> profile = PLACEHOLDER_PROFILES.get(connection.getMetaData().getDatabaseProductName());
+        if (profile == null) {
+            return placeholderValues;
         }
-        matcher.appendTail(builder);
-        return builder.toString();
+
+        Map<String, String> result = new HashMap<>(profile);
+        result.putAll(placeholderValues);
+        return result;
     }
 
     private SortedSet<Path> readFilenamesFromClasspath(String path) throws IOException, URISyntaxException {
@@ -287,8 +653,16 @@ public class DbEvolve {
         }
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new MigrationException("Unable to MessageDigest.getInstance of SHA-256", e);
+        }
+    }
+
     private static String hash(byte[] fileContent) {
-        byte[] encodedhash = digest.digest(fileContent);
+        byte[] encodedhash = digest.get().digest(fileContent);
         return bytesToHex(encodedhash);
     }
 
@@ -320,6 +694,130 @@ public class DbEvolve {
         }
     }
 
+    public final class Watcher implements Closeable {
+
+        private final WatchService watchService;
+        private final Map<String, String> sqlScriptsByName;
+        private final Map<String, String> placeholderValues;
+        private final SortedSet<Path> pending = new TreeSet<>(VERSION_COMPARATOR); // postponed due to a locked database
+        private final Thread thread;
+
+        private Watcher(WatchService watchService, Map<String, String> sqlScriptsByName, Map<String, String> placeholderValues) {
+            this.watchService = watchService;
+            this.sqlScriptsByName = sqlScriptsByName;
+            this.placeholderValues = placeholderValues;
+            this.thread = new Thread(this::run, "db-evolve-watcher");
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    SortedSet<Path> files = new TreeSet<>(VERSION_COMPARATOR);
+                    // retry postponed scripts after a while, even if nothing changes in the directory
+                    WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(WATCH_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                    // editors write files in several steps, so wait until the directory is quiet
+                    while (key != null) {
+                        try {
+                            collectSqlFiles(key, files);
+                        } catch (RuntimeException e) {
+                            // keep watching, a single bad event must not stop the watcher
+                            logger.log(Logger.Level.INFO, String.format("Db-Evolve watcher failed to collect changes: %s", e));
+                        }
+                        key = watchService.poll(WATCH_QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+
+                    files.addAll(pending);
+                    pending.clear();
+
+                    for (Path file : files) {
+                        if (!hotApply(file)) {
+                            pending.add(file);
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // watcher closed
+            }
+        }
+
+        private void collectSqlFiles(WatchKey key, SortedSet<Path> files) {
+            try {
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        logger.log(Logger.Level.INFO, "Db-Evolve watcher missed events, restart to pick up all changes.");
+                        continue;
+                    }
+
+                    Path file = directory.resolve((Path) event.context());
+                    if (FILE_VERSION_PATTERN.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file)) {
+                        try {
+                            files.add(file);
+                        } catch (RuntimeException e) {
+                            logger.log(Logger.Level.INFO, String.format("Db-Evolve skipping %s: %s", file.getFileName(), e));
+                        }
+                    }
+                }
+            } finally {
+                key.reset();
+            }
+        }
+
+        /**
+         * Returns false if the script was postponed because the database is locked.
+         */
+        private boolean hotApply(Path file) {
+            try {
+                PreparedFile preparedFile = prepare(file, sqlScriptsByName, placeholderValues, false);
+
+                if (preparedFile.knownHash != null) {
+                    verifyUnchanged(preparedFile);
+                    return true;
+                }
+
+                // editors create files before their content is saved, don't record them until they are complete
+                if (preparedFile.script.statements.isEmpty() || !preparedFile.script.complete) {
+                    logger.log(Logger.Level.INFO, String.format("Db-Evolve skipping %s until its last statement is complete.", preparedFile.fileName));
+                    return true;
+                }
+
+                try (Connection connection = dataSource.getConnection()) {
+                    connection.setAutoCommit(true);
+
+                    if (!lock(connection)) {
+                        logger.log(Logger.Level.INFO, String.format("Db-Evolve postponing %s due to locked database.", preparedFile.fileName));
+                        return false;
+                    }
+
+                    try {
+                        migrateSqlFile(connection, preparedFile, withProfilePlaceholders(connection, placeholderValues));
+                    } finally {
+                        unlock(connection);
+                    }
+                }
+
+                sqlScriptsByName.put(preparedFile.fileName, preparedFile.hash);
+                logger.log(Logger.Level.INFO, String.format("Db-Evolve applied %s", preparedFile.fileName));
+            } catch (MigrationException e) {
+                logger.log(Logger.Level.INFO, e.getMessage());
+            } catch (IOException | SQLException | RuntimeException e) {
+                logger.log(Logger.Level.INFO, String.format("Db-Evolve failed to apply %s: %s", file.getFileName(), e));
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchService.close();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public interface Logger {
 
         Logger NO_OP = new Logger() {
@@ -345,7 +843,145 @@ public class DbEvolve {
         }
     }
 
-    public interface StatementExecutor {
-        void execute(String statement) throws SQLException;
+    interface StatementConsumer {
+        void accept(String statement, int lineNumber);
+    }
+
+    /**
+     * The compiled statements of a script and the session settings it runs with.
+     */
+    static final class Script {
+
+        final List<Template> statements;
+        final List<SessionDirective> sessionDirectives;
+        final boolean complete; // false if the last statement is not terminated by its delimiter
+
+        Script(List<Template> statements, List<SessionDirective> sessionDirectives, boolean complete) {
+            this.statements = statements;
+            this.sessionDirectives = sessionDirectives;
+            this.complete = complete;
+        }
+    }
+
+    static final class SessionDirective {
+
+        final Template setting;
+        final Template reset;
+
+        SessionDirective(Template setting, Template reset) {
+            this.setting = setting;
+            this.reset = reset;
+        }
+    }
+
+    /**
+     * A script read from disk, ready to be applied. Holds either a failure that occurred while preparing it, the
+     * hash of an already applied script, or the compiled statements of a pending one.
+     */
+    static final class PreparedFile {
+
+        static final PreparedFile END = new PreparedFile(null, null, null, null, null, null);
+
+        private final String fileName;
+        private final String hash;
+        private final String knownHash;
+        private final Script script;
+        private final List<String> statements; // rendered statements, may be null or incomplete
+        private final Throwable failure;
+
+        PreparedFile(String fileName, String hash, String knownHash, Script script, List<String> statements, Throwable failure) {
+            this.fileName = fileName;
+            this.hash = hash;
+            this.knownHash = knownHash;
+            this.script = script;
+            this.statements = statements;
+            this.failure = failure;
+        }
+
+        static PreparedFile failed(Throwable failure) {
+            return new PreparedFile(null, null, null, null, null, failure);
+        }
+
+        String statement(int index, Map<String, String> placeholderValues) {
+            if (statements != null && index < statements.size()) {
+                return statements.get(index);
+            }
+            return script.statements.get(index).render(placeholderValues);
+        }
+
+        void rethrowFailure() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+    }
+
+    /**
+     * A statement split into literal and placeholder segments. Rendering is a single append pass, and replacement
+     * values are inserted verbatim.
+     */
+    static final class Template {
+
+        private final int lineNumber;
+        private final String[] literals; // one more literal than placeholders
+        private final String[] placeholders;
+        private final int literalsLength;
+
+        private Template(int lineNumber, String[] literals, String[] placeholders) {
+            this.lineNumber = lineNumber;
+            this.literals = literals;
+            this.placeholders = placeholders;
+
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.literalsLength = length;
+        }
+
+        static Template compile(String statement, int lineNumber) {
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(statement);
+            int literalStart = 0;
+            while (matcher.find()) {
+                literals.add(statement.substring(literalStart, matcher.start()));
+                placeholders.add(matcher.group(1));
+                literalStart = matcher.end();
+            }
+            literals.add(statement.substring(literalStart));
+
+            return new Template(lineNumber, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+        }
+
+        String render(Map<String, String> placeholderValues) {
+            if (placeholders.length == 0) {
+                return literals[0];
+            }
+
+            String[] replacements = new String[placeholders.length];
+            int length = literalsLength;
+            for (int i = 0; i < placeholders.length; i++) {
+                String replacement = placeholderValues.get(placeholders[i]);
+                if (replacement == null) {
+                    throw new MigrationException(String.format("Missing value for placeholder '%s'", placeholders[i]));
+                }
+                replacements[i] = replacement;
+                length += replacement.length();
+            }
+
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < placeholders.length; i++) {
+                builder.append(literals[i]).append(replacements[i]);
+            }
+            return builder.append(literals[placeholders.length]).toString();
+        }
     }
 }
\ No newline at end of file
@@ -4,12 +4,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.function.ThrowingSupplier;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -20,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -29,8 +33,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertLinesMatch;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class DbEvolveShould {
 
@@ -153,6 +160,77 @@ public class DbEvolveShould {
         assertEquals(migrationException.getMessage(), "V1__create_tables.sql - Invalid sql statement found at line 9");
     }
 
+    @Test
+    void create_and_alter_tables_pipelined() throws Exception {
+        DbEvolve dbEvolve = new DbEvolve(dataSource).withPipelining(1);
+        dbEvolve.migrate();
+
+        List<SqlScript> scripts = selectAll();
+        assertEquals(2, scripts.size());
+        assertEquals("V1__create_tables.sql", scripts.get(0).name);
+        assertEquals("V2__alter_tables.sql", scripts.get(1).name);
+
+        assertDoesNotThrow(() -> execute("INSERT INTO TEST1 VALUES (1, 'ABC')"));
+        assertDoesNotThrow(() -> execute("INSERT INTO TEST2 VALUES (2, 'CBA')"));
+    }
+
+    @Test
+    void throw_an_exception_if_a_migrated_script_has_changed_pipelined() throws Exception {
+        new DbEvolve(dataSource).migrate();
+
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_changed_file_content", null).withPipelining(2);
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, dbEvolve::migrate);
+        assertEquals("Content of V2__alter_tables.sql has changed. Expected hash a677106b5ac1ba1aa0724147dd8a392cae90500a1f3af032e0fd6268ca9a7b96 but was f41274c6b68fa4bd38b1dca865a0cc0da59c277f1b104a8f32ff2cf374516f6d", exception.getMessage());
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(dbEvolve.lock(connection));
+        }
+    }
+
+    @Test
+    void throw_an_exception_if_sql_stmt_is_invalid_pipelined() throws Exception {
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_invalid_stmt", null).withPipelining(1);
+        DbEvolve.MigrationException migrationException = assertThrows(DbEvolve.MigrationException.class, dbEvolve::migrate);
+        assertEquals("V1__create_tables.sql - Invalid sql statement found at line 9", migrationException.getMessage());
+        assertEquals(0, selectAll().size());
+    }
+
+    @Test
+    void throw_an_exception_if_placeholder_value_is_missing_pipelined() {
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_with_placeholders", null).withPipelining(1);
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, dbEvolve::migrate);
+        assertEquals("Missing value for placeholder 'chartype'", exception.getMessage());
+    }
+
+    @Test
+    void resume_failed_script_at_first_incomplete_statement() throws Exception {
+        DbEvolve failing = new DbEvolve(dataSource, "sql_invalid_stmt", null).withCheckpoints();
+        assertThrows(DbEvolve.MigrationException.class, failing::migrate);
+
+        assertEquals(0, selectAll().size());
+        assertEquals(1, selectCheckpoints(failing).size());
+        assertDoesNotThrow(() -> execute("INSERT INTO TEST1 VALUES (1)"));
+
+        DbEvolve fixed = new DbEvolve(dataSource).withCheckpoints();
+        assertTrue(fixed.migrate());
+
+        List<SqlScript> scripts = selectAll();
+        assertEquals(2, scripts.size());
+        assertEquals("V1__create_tables.sql", scripts.get(0).name);
+        assertEquals(0, selectCheckpoints(fixed).size());
+        assertDoesNotThrow(() -> execute("INSERT INTO TEST2 VALUES (2, 'CBA')"));
+    }
+
+    @Test
+    void throw_an_exception_if_a_completed_statement_has_changed() {
+        DbEvolve failing = new DbEvolve(dataSource, "sql_invalid_stmt", null).withCheckpoints();
+        assertThrows(DbEvolve.MigrationException.class, failing::migrate);
+
+        DbEvolve changed = new DbEvolve(dataSource, "sql_with_placeholders", null).withCheckpoints();
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, () -> changed.migrate(Map.of("chartype", "VARCHAR(255)")));
+        assertTrue(exception.getMessage().startsWith("Completed statement 1 of V1__create_tables.sql has changed."));
+    }
+
     @Test
     void parse_statement_with_custom_delimiter() throws IOException {
         DbEvolve dbEvolve = new DbEvolve(dataSource);
@@ -171,7 +249,9 @@ public class DbEvolveShould {
 
         String functionWithCustomDelimiter = "DELIMITER ##\n" + postgresFunction + "##\n";
 
-        dbEvolve.parseAndExecuteStatements("file.sql", new BufferedReader(new StringReader(functionWithCustomDelimiter)), stmt -> assertEquals(postgresFunction, stmt));
+        List<String> statements = new ArrayList<>();
+        dbEvolve.parseStatements(new BufferedReader(new StringReader(functionWithCustomDelimiter)), (statement, lineNumber) -> statements.add(statement));
+        assertEquals(List.of(postgresFunction), statements);
     }
 
     @Test
@@ -182,11 +262,57 @@ public class DbEvolveShould {
 
     @Test
     void replace_placeholders_with_values() {
-        DbEvolve dbEvolve = new DbEvolve(dataSource);
-        String statement = dbEvolve.replacePlaceholder("CREATE TABLE TEST ( \n CREATED_AT ${datetime} \n, \n MODIFIED_AT ${datetime} \n)", Map.of("datetime", "TIMESTAMP"));
+        String statement = DbEvolve.Template.compile("CREATE TABLE TEST ( \n CREATED_AT ${datetime} \n, \n MODIFIED_AT ${datetime} \n)", 1).render(Map.of("datetime", "TIMESTAMP"));
         assertEquals("CREATE TABLE TEST ( \n CREATED_AT TIMESTAMP \n, \n MODIFIED_AT TIMESTAMP \n)", statement);
     }
 
+    @Test
+    void insert_placeholder_values_verbatim() {
+        String statement = DbEvolve.Template.compile("INSERT INTO TEST VALUES ('${price}', '${path}')", 1).render(Map.of("price", "$1", "path", "C:\\tmp"));
+        assertEquals("INSERT INTO TEST VALUES ('$1', 'C:\\tmp')", statement);
+    }
+
+    @Test
+    void throw_an_exception_if_placeholder_value_is_missing() {
+        DbEvolve.Template template = DbEvolve.Template.compile("CREATE TABLE TEST (CREATED_AT ${datetime})", 1);
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, () -> template.render(Map.of()));
+        assertEquals("Missing value for placeholder 'datetime'", exception.getMessage());
+    }
+
+    @Test
+    void compile_script_only_once_per_content_hash() throws IOException {
+        DbEvolve dbEvolve = new DbEvolve(dataSource);
+        byte[] content = "CREATE TABLE TEST1 (ID ${datetime});\n\nCREATE TABLE TEST2 (ID INT);\n".getBytes();
+
+        List<DbEvolve.Template> templates = dbEvolve.compile("file.sql", "hash", content).statements;
+
+        assertEquals(2, templates.size());
+        assertEquals("CREATE TABLE TEST1 (ID TIMESTAMP)", templates.get(0).render(Map.of("datetime", "TIMESTAMP")));
+        assertEquals("CREATE TABLE TEST2 (ID INT)", templates.get(1).render(Map.of()));
+        assertSame(templates, dbEvolve.compile("file.sql", "hash", content).statements);
+    }
+
+    @Test
+    void evict_least_recently_compiled_scripts() throws IOException {
+        DbEvolve dbEvolve = new DbEvolve(dataSource);
+        byte[] content = "CREATE TABLE TEST1 (ID INT);\n".getBytes();
+
+        DbEvolve.Script first = dbEvolve.compile("file.sql", "hash0", content);
+        for (int i = 1; i <= DbEvolve.SCRIPT_CACHE_SIZE; i++) {
+            dbEvolve.compile("file.sql", "hash" + i, content);
+        }
+
+        assertNotSame(first, dbEvolve.compile("file.sql", "hash0", content));
+    }
+
+    @Test
+    void use_placeholder_profile_of_database_vendor() throws Exception {
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_with_placeholders", null);
+        dbEvolve.migrate(Map.of("chartype", "VARCHAR(255)"));
+
+        assertDoesNotThrow(() -> execute("INSERT INTO TEST1 (ID, NAME, CREATED_DATE, MODIFIED_DATE) VALUES (1, 'ABC', NOW(), NOW())"));
+    }
+
     @Test
     void replace_placeholders_and_create_and_alter_tables() throws Exception {
         DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_with_placeholders", null);
@@ -196,6 +322,178 @@ public class DbEvolveShould {
         assertDoesNotThrow(() -> execute("INSERT INTO TEST2 (ID, NAME, CREATED_DATE, MODIFIED_DATE) VALUES (2, 'CBA', NOW(), NOW())"));
     }
 
+    @Test
+    void hot_apply_added_scripts_and_report_changed_ones(@TempDir Path directory) throws Throwable {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "not_existing", new DbEvolve.Logger() {
+            @Override
+            public void log(Level level, String message) {
+                messages.add(message);
+            }
+        });
+
+        try (DbEvolve.Watcher ignored = dbEvolve.watch(directory, Collections.emptyMap())) {
+            Files.copy(Path.of("src/test/resources/sql/V1__create_tables.sql"), directory.resolve("V1__create_tables.sql"));
+            awaitUntil(() -> selectAll().size() == 1);
+            assertDoesNotThrow(() -> execute("INSERT INTO TEST1 VALUES (1)"));
+
+            Files.writeString(directory.resolve("V1__create_tables.sql"), "DROP TABLE TEST1;\n");
+            awaitUntil(() -> messages.stream().anyMatch(message -> message.startsWith("Content of V1__create_tables.sql has changed")));
+            assertEquals(1, selectAll().size());
+        }
+    }
+
+    @Test
+    void hot_apply_scripts_only_once_complete(@TempDir Path directory) throws Throwable {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "not_existing", new DbEvolve.Logger() {
+            @Override
+            public void log(Level level, String message) {
+                messages.add(message);
+            }
+        });
+        Path script = directory.resolve("V1__create_tables.sql");
+        String skipped = "Db-Evolve skipping V1__create_tables.sql until its last statement is complete.";
+
+        try (DbEvolve.Watcher ignored = dbEvolve.watch(directory, Collections.emptyMap())) {
+            Files.createFile(script);
+            awaitUntil(() -> messages.contains(skipped));
+            messages.clear();
+
+            Files.writeString(script, "CREATE TABLE TEST1 (\n    ID VARCHAR(36) NOT NULL");
+            awaitUntil(() -> messages.contains(skipped));
+            assertEquals(0, selectAll().size());
+
+            Files.copy(Path.of("src/test/resources/sql/V1__create_tables.sql"), script, StandardCopyOption.REPLACE_EXISTING);
+            awaitUntil(() -> selectAll().size() == 1);
+            assertEquals("2b19e853bf20b0fc16a34c0adbfa9341e39494dee0128a26ce7b640df555fa03", selectAll().get(0).hash);
+        }
+    }
+
+    @Test
+    void retry_hot_apply_after_database_is_unlocked(@TempDir Path directory) throws Throwable {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "not_existing", new DbEvolve.Logger() {
+            @Override
+            public void log(Level level, String message) {
+                messages.add(message);
+            }
+        });
+
+        try (DbEvolve.Watcher ignored = dbEvolve.watch(directory, Collections.emptyMap())) {
+            try (Connection connection = dataSource.getConnection()) {
+                assertTrue(dbEvolve.lock(connection));
+            }
+
+            Files.copy(Path.of("src/test/resources/sql/V1__create_tables.sql"), directory.resolve("V1__create_tables.sql"));
+            awaitUntil(() -> messages.contains("Db-Evolve postponing V1__create_tables.sql due to locked database."));
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertTrue(dbEvolve.unlock(connection));
+            }
+            awaitUntil(() -> selectAll().size() == 1);
+        }
+    }
+
+    @Test
+    void keep_watching_after_a_bad_file(@TempDir Path directory) throws Throwable {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "not_existing", new DbEvolve.Logger() {
+            @Override
+            public void log(Level level, String message) {
+                messages.add(message);
+            }
+        });
+
+        try (DbEvolve.Watcher ignored = dbEvolve.watch(directory, Collections.emptyMap())) {
+            Files.writeString(directory.resolve("V99999999999__too_large_version.sql"), "CREATE TABLE TEST2 (ID INT);\n");
+            awaitUntil(() -> messages.stream().anyMatch(message -> message.startsWith("Db-Evolve skipping V99999999999__too_large_version.sql")));
+
+            Files.copy(Path.of("src/test/resources/sql/V1__create_tables.sql"), directory.resolve("V1__create_tables.sql"));
+            awaitUntil(() -> selectAll().size() == 1);
+        }
+    }
+
+    private void awaitUntil(ThrowingSupplier<Boolean> condition) throws Throwable {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.get()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10s");
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void parse_session_directives_from_script_header() throws IOException {
+        DbEvolve dbEvolve = new DbEvolve(dataSource);
+        byte[] content = ("-- Large index build\n" +
+                "-- db-evolve:session SET maintenance_work_mem = '${work_mem}';\n" +
+                "-- db-evolve:session SET LOCK_TIMEOUT 5000\n" +
+                "-- db-evolve:reset SET LOCK_TIMEOUT 1000\n" +
+                "\n" +
+                "CREATE INDEX TEST1_IDX ON TEST1 (NAME);\n" +
+                "-- db-evolve:session SET ignored = 1\n").getBytes();
+
+        List<DbEvolve.SessionDirective> directives = dbEvolve.compile("file.sql", "hash", content).sessionDirectives;
+
+        assertEquals(2, directives.size());
+        assertEquals("SET maintenance_work_mem = '2GB'", directives.get(0).setting.render(Map.of("work_mem", "2GB")));
+        assertEquals("SET maintenance_work_mem = DEFAULT", directives.get(0).reset.render(Map.of()));
+        assertEquals("SET LOCK_TIMEOUT 5000", directives.get(1).setting.render(Map.of()));
+        assertEquals("SET LOCK_TIMEOUT 1000", directives.get(1).reset.render(Map.of()));
+    }
+
+    @Test
+    void derive_reset_of_session_directive() {
+        assertEquals("SET max_parallel_maintenance_workers = DEFAULT", DbEvolve.deriveReset("file.sql", "SET max_parallel_maintenance_workers TO 4", 1));
+        assertEquals("SET SESSION sort_buffer_size = DEFAULT", DbEvolve.deriveReset("file.sql", "SET SESSION sort_buffer_size = 268435456", 1));
+        assertEquals("ALTER SESSION DISABLE PARALLEL DML", DbEvolve.deriveReset("file.sql", "ALTER SESSION ENABLE PARALLEL DML", 1));
+
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, () -> DbEvolve.deriveReset("file.sql", "SET LOCK_TIMEOUT 5000", 3));
+        assertEquals("file.sql - No reset known for session directive at line 3, add a reset directive", exception.getMessage());
+
+        exception = assertThrows(DbEvolve.MigrationException.class, () -> DbEvolve.deriveReset("file.sql", "ALTER SESSION ENABLE PARALLEL DDL", 4));
+        assertEquals("file.sql - No reset known for session directive at line 4, add a reset directive", exception.getMessage());
+        assertThrows(DbEvolve.MigrationException.class, () -> DbEvolve.deriveReset("file.sql", "ALTER SESSION ENABLE RESUMABLE TIMEOUT 3600", 5));
+    }
+
+    @Test
+    void apply_session_directives_for_the_script_only() throws Exception {
+        assumeTrue(DB_EXTENSION.isH2());
+        int lockTimeout = selectLockTimeout();
+
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_with_session_directives", null);
+        dbEvolve.migrate(Map.of("lock_timeout", String.valueOf(lockTimeout)));
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet rs = statement.executeQuery("SELECT T FROM TEST1");
+            assertTrue(rs.next());
+            assertEquals(4321, rs.getInt("T"));
+        }
+        assertEquals(lockTimeout, selectLockTimeout());
+    }
+
+    @Test
+    void report_line_of_failing_session_reset() throws Exception {
+        assumeTrue(DB_EXTENSION.isH2());
+        int lockTimeout = selectLockTimeout();
+
+        DbEvolve dbEvolve = new DbEvolve(dataSource, "sql_with_failing_session_reset", null);
+        DbEvolve.MigrationException exception = assertThrows(DbEvolve.MigrationException.class, () -> dbEvolve.migrate(Map.of("lock_timeout", String.valueOf(lockTimeout))));
+
+        assertEquals("V1__create_tables.sql - Invalid sql statement found at line 4", exception.getMessage());
+        assertEquals(1, selectAll().size());
+    }
+
+    private int selectLockTimeout() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet rs = statement.executeQuery("SELECT LOCK_TIMEOUT()");
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
     private int execute(String sqlStatement) throws SQLException {
         try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
@@ -203,6 +501,12 @@ public class DbEvolveShould {
         }
     }
 
+    private List<String> selectCheckpoints(DbEvolve dbEvolve) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return dbEvolve.selectCheckpoints(connection, "V1__create_tables.sql");
+        }
+    }
+
     private List<SqlScript> selectAll() throws SQLException {
         try (Connection connection = dataSource.getConnection();
              Statement ps = connection.createStatement()) {
@@ -40,6 +40,10 @@ public class DbExtension implements BeforeAllCallback, AfterEachCallback, AfterA
         return dataSource;
     }
 
+    public boolean isH2() {
+        return getTestDBVendor() == null;
+    }
+
     public boolean isPostgres() {
         return "POSTGRES".equals(getTestDBVendor());
     }
@@ -49,7 +53,7 @@ public class DbExtension implements BeforeAllCallback, AfterEachCallback, AfterA
         dataSource.close();
     }
 
-    private static DatabaseTestConfig findDatabaseConfig() {
+    static DatabaseTestConfig findDatabaseConfig() {
         String testDB = getTestDBVendor();
 
         if (testDB == null) {
@@ -0,0 +1,398 @@
+package os.db.evolve;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a rolling deployment: {@code nodes} application instances call {@link DbEvolve#migrate()} at the same
+ * time while one long running migration is pending. Reports per strategy how long nodes take until their schema is
+ * up to date, how long lock attempts take and how many round trips are wasted on a locked database.
+ * <p>
+ * Runs against H2 by default, or against the database selected by the environment variable {@code TEST_DB}, see
+ * {@link DbExtension}. Start with {@code mvn test -Pbenchmark -DskipTests}, optionally with
+ * {@code -Dbenchmark.nodes=40} and {@code -Dbenchmark.migrationMillis=2000}.
+ */
+public class LockContentionBenchmark {
+
+    private static final DbEvolve.Logger QUIET = new DbEvolve.Logger() {
+        @Override
+        public void log(Level level, String message) {
+        }
+    };
+
+    private final DatabaseTestConfig databaseTestConfig;
+    private final int nodes;
+    private final long migrationMillis;
+
+    public LockContentionBenchmark(DatabaseTestConfig databaseTestConfig, int nodes, long migrationMillis) {
+        this.databaseTestConfig = databaseTestConfig;
+        this.nodes = nodes;
+        this.migrationMillis = migrationMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nodes = Integer.getInteger("benchmark.nodes", 40);
+        long migrationMillis = Long.getLong("benchmark.migrationMillis", 2000);
+        LockContentionBenchmark benchmark = new LockContentionBenchmark(DbExtension.findDatabaseConfig(), nodes, migrationMillis);
+
+        System.out.printf("%d nodes, pending migration of %d ms%n", nodes, migrationMillis);
+        List<LockStrategy> lockStrategies = new ArrayList<>(List.of(LockStrategy.TEST_AND_SET, LockStrategy.TEST_TEST_AND_SET));
+        if (benchmark.databaseTestConfig instanceof PostgresDatabaseTestConfig) {
+            lockStrategies.add(LockStrategy.POSTGRES_ADVISORY_LOCK);
+        }
+
+        System.out.println(Result.HEADER);
+        for (LockStrategy lockStrategy : lockStrategies) {
+            for (WaitStrategy waitStrategy : List.of(WaitStrategy.fixedRetry(100), WaitStrategy.exponentialBackoff(50, 1000), WaitStrategy.pollLock(100))) {
+                System.out.println(benchmark.run(lockStrategy, waitStrategy));
+            }
+        }
+    }
+
+    public Result run(LockStrategy lockStrategy, WaitStrategy waitStrategy) throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(databaseTestConfig.jdbcUrl());
+        config.setDriverClassName(databaseTestConfig.driver());
+        config.setUsername(databaseTestConfig.user());
+        config.setPassword(databaseTestConfig.password());
+        config.setMaximumPoolSize(nodes + 1);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            String sleep = prepareDatabase(dataSource);
+
+            ExecutorService executor = Executors.newFixedThreadPool(nodes);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Node>> futures = new ArrayList<>();
+                for (int i = 0; i < nodes; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        long startNanos = System.nanoTime();
+                        Node node = new Node(new InstrumentedDbEvolve(dataSource, lockStrategy), dataSource, lockStrategy, Map.of("sleep", sleep));
+                        waitStrategy.awaitReady(node);
+                        node.readyNanos = System.nanoTime() - startNanos;
+                        return node;
+                    }));
+                }
+                start.countDown();
+
+                List<Node> result = new ArrayList<>();
+                for (Future<Node> future : futures) {
+                    result.add(future.get());
+                }
+                return new Result(lockStrategy.name(), waitStrategy.name(), result);
+            } finally {
+                executor.shutdownNow();
+                databaseTestConfig.clearDb(dataSource);
+            }
+        }
+    }
+
+    /**
+     * Clears the database and creates the DbEvolve tables, like a previous deployment would have done. Returns the
+     * vendor specific statement simulating the long running migration.
+     */
+    private String prepareDatabase(HikariDataSource dataSource) throws SQLException {
+        databaseTestConfig.clearDb(dataSource);
+        new DbEvolve(dataSource, "sql_benchmark", QUIET);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            String productName = connection.getMetaData().getDatabaseProductName();
+            switch (productName) {
+                case "H2":
+                    statement.execute("CREATE ALIAS IF NOT EXISTS SLEEP FOR \"java.lang.Thread.sleep\"");
+                    return String.format("CALL SLEEP(%d)", migrationMillis);
+                case "PostgreSQL":
+                    return String.format(Locale.ROOT, "DO $$ BEGIN PERFORM pg_sleep(%f); END $$", migrationMillis / 1000.0);
+                case "MySQL":
+                    return String.format(Locale.ROOT, "DO SLEEP(%f)", migrationMillis / 1000.0);
+                default:
+                    throw new IllegalArgumentException("Unsupported database " + productName);
+            }
+        }
+    }
+
+    /**
+     * How a node acquires and releases the migration lock. By default this is the DB_EVOLVE_LOCK row.
+     */
+    public interface LockStrategy {
+
+        LockStrategy TEST_AND_SET = new LockStrategy() {
+            public String name() {
+                return "test-and-set";
+            }
+
+            public boolean lock(Connection connection, BuiltIn lock) throws SQLException {
+                return lock.execute();
+            }
+        };
+
+        /**
+         * Reads the lock row first and only tries to update it if it is free.
+         */
+        LockStrategy TEST_TEST_AND_SET = new LockStrategy() {
+            public String name() {
+                return "test-test-and-set";
+            }
+
+            public boolean lock(Connection connection, BuiltIn lock) throws SQLException {
+                return !isLocked(connection) && lock.execute();
+            }
+        };
+
+        /**
+         * Uses a session level advisory lock instead of the lock row. Postgres only.
+         */
+        LockStrategy POSTGRES_ADVISORY_LOCK = new LockStrategy() {
+            private static final long KEY = 0xDBE;
+
+            public String name() {
+                return "pg-advisory-lock";
+            }
+
+            public boolean lock(Connection connection, BuiltIn lock) throws SQLException {
+                return queryBoolean(connection, "SELECT pg_try_advisory_lock(" + KEY + ")");
+            }
+
+            public boolean unlock(Connection connection, BuiltIn unlock) throws SQLException {
+                return queryBoolean(connection, "SELECT pg_advisory_unlock(" + KEY + ")");
+            }
+
+            public boolean isLocked(Connection connection) throws SQLException {
+                return queryBoolean(connection, "SELECT COUNT(*) > 0 FROM pg_locks WHERE locktype = 'advisory' AND objid = " + KEY);
+            }
+        };
+
+        String name();
+
+        /**
+         * @param lock the built-in lock of DbEvolve, updating the DB_EVOLVE_LOCK row
+         */
+        boolean lock(Connection connection, BuiltIn lock) throws SQLException;
+
+        /**
+         * @param unlock the built-in unlock of DbEvolve, updating the DB_EVOLVE_LOCK row
+         */
+        default boolean unlock(Connection connection, BuiltIn unlock) throws SQLException {
+            return unlock.execute();
+        }
+
+        /**
+         * Checks the lock without acquiring it. Used for polling.
+         */
+        default boolean isLocked(Connection connection) throws SQLException {
+            return !queryBoolean(connection, "SELECT COUNT(*) = 1 FROM DB_EVOLVE_LOCK WHERE DB_LOCK = 0");
+        }
+    }
+
+    public interface BuiltIn {
+        boolean execute() throws SQLException;
+    }
+
+    /**
+     * How a node waits until its schema is up to date, i.e. until {@link DbEvolve#migrate()} returns true.
+     */
+    public interface WaitStrategy {
+
+        static WaitStrategy fixedRetry(long intervalMillis) {
+            return new WaitStrategy() {
+                public String name() {
+                    return String.format("fixed-retry-%dms", intervalMillis);
+                }
+
+                public void awaitReady(Node node) throws Exception {
+                    while (!node.migrate()) {
+                        Thread.sleep(intervalMillis);
+                    }
+                }
+            };
+        }
+
+        static WaitStrategy exponentialBackoff(long initialMillis, long maxMillis) {
+            return new WaitStrategy() {
+                public String name() {
+                    return String.format("backoff-%d-%dms", initialMillis, maxMillis);
+                }
+
+                public void awaitReady(Node node) throws Exception {
+                    long delay = initialMillis;
+                    while (!node.migrate()) {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+                        delay = Math.min(delay * 2, maxMillis);
+                    }
+                }
+            };
+        }
+
+        static WaitStrategy pollLock(long intervalMillis) {
+            return new WaitStrategy() {
+                public String name() {
+                    return String.format("poll-lock-%dms", intervalMillis);
+                }
+
+                public void awaitReady(Node node) throws Exception {
+                    while (node.isLocked() || !node.migrate()) {
+                        Thread.sleep(intervalMillis);
+                    }
+                }
+            };
+        }
+
+        String name();
+
+        void awaitReady(Node node) throws Exception;
+    }
+
+    public static class Node {
+
+        private final InstrumentedDbEvolve dbEvolve;
+        private final HikariDataSource dataSource;
+        private final LockStrategy lockStrategy;
+        private final Map<String, String> placeholderValues;
+        private long readyNanos;
+        private int lockedPolls;
+
+        Node(InstrumentedDbEvolve dbEvolve, HikariDataSource dataSource, LockStrategy lockStrategy, Map<String, String> placeholderValues) {
+            this.dbEvolve = dbEvolve;
+            this.dataSource = dataSource;
+            this.lockStrategy = lockStrategy;
+            this.placeholderValues = placeholderValues;
+        }
+
+        public boolean migrate() throws Exception {
+            return dbEvolve.migrate(placeholderValues);
+        }
+
+        public boolean isLocked() throws SQLException {
+            try (Connection connection = dataSource.getConnection()) {
+                boolean locked = lockStrategy.isLocked(connection);
+                if (locked) {
+                    lockedPolls++;
+                }
+                return locked;
+            }
+        }
+    }
+
+    static class InstrumentedDbEvolve extends DbEvolve {
+
+        private final LockStrategy lockStrategy;
+        private int lockAttempts;
+        private int failedLockAttempts;
+        private long lockNanos;
+        // no initializer, so it keeps what the super constructor counted while creating the DbEvolve tables
+        private int failedSetupStatements;
+
+        InstrumentedDbEvolve(HikariDataSource dataSource, LockStrategy lockStrategy) {
+            super(dataSource, "sql_benchmark", QUIET);
+            this.lockStrategy = lockStrategy;
+        }
+
+        @Override
+        boolean lock(Connection connection) throws SQLException {
+            long start = System.nanoTime();
+            boolean locked = lockStrategy.lock(connection, () -> super.lock(connection));
+            lockNanos += System.nanoTime() - start;
+            lockAttempts++;
+            if (!locked) {
+                failedLockAttempts++;
+            }
+            return locked;
+        }
+
+        @Override
+        boolean unlock(Connection connection) throws SQLException {
+            return lockStrategy.unlock(connection, () -> super.unlock(connection));
+        }
+
+        @Override
+        void execute(Connection connection, String sqlStatement) throws SQLException {
+            try {
+                super.execute(connection, sqlStatement);
+            } catch (SQLException e) {
+                failedSetupStatements++; // migration statements do not fail, only creating already existing tables
+                throw e;
+            }
+        }
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet rs = statement.executeQuery(sql);
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    public static class Result {
+
+        static final String HEADER = String.format("%-18s %-20s %10s %10s %10s %10s %14s %12s %12s %12s",
+                "lock", "wait", "ready p50", "ready p95", "ready max", "lock avg", "lock attempts", "failed", "failed setup", "wasted");
+
+        private final String lockStrategy;
+        private final String waitStrategy;
+        private final List<Node> nodes;
+
+        Result(String lockStrategy, String waitStrategy, List<Node> nodes) {
+            this.lockStrategy = lockStrategy;
+            this.waitStrategy = waitStrategy;
+            this.nodes = nodes;
+        }
+
+        long readyPercentileMillis(double percentile) {
+            long[] readyNanos = nodes.stream().mapToLong(node -> node.readyNanos).sorted().toArray();
+            int index = (int) Math.ceil(percentile * readyNanos.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(readyNanos[Math.max(index, 0)]);
+        }
+
+        int lockAttempts() {
+            return nodes.stream().mapToInt(node -> node.dbEvolve.lockAttempts).sum();
+        }
+
+        int failedLockAttempts() {
+            return nodes.stream().mapToInt(node -> node.dbEvolve.failedLockAttempts).sum();
+        }
+
+        /**
+         * Statements failing on construction of DbEvolve, because its tables already exist.
+         */
+        int failedSetupStatements() {
+            return nodes.stream().mapToInt(node -> node.dbEvolve.failedSetupStatements).sum();
+        }
+
+        /**
+         * Round trips that did not bring a node closer to a consistent schema: failed setup statements, failed lock
+         * attempts and polls that found the database locked.
+         */
+        int wastedRoundTrips() {
+            return failedSetupStatements() + failedLockAttempts() + nodes.stream().mapToInt(node -> node.lockedPolls).sum();
+        }
+
+        double lockAverageMillis() {
+            long lockNanos = nodes.stream().mapToLong(node -> node.dbEvolve.lockNanos).sum();
+            return lockNanos / 1_000_000.0 / Math.max(lockAttempts(), 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-18s %-20s %8dms %8dms %8dms %8.2fms %14d %12d %12d %12d",
+                    lockStrategy, waitStrategy, readyPercentileMillis(0.5), readyPercentileMillis(0.95), readyPercentileMillis(1.0),
+                    lockAverageMillis(), lockAttempts(), failedLockAttempts(), failedSetupStatements(), wastedRoundTrips());
+        }
+    }
+}
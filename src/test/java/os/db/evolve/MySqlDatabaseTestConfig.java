@@ -14,6 +14,7 @@ class MySqlDatabaseTestConfig implements DatabaseTestConfig {
             statement.execute("DROP TABLE IF EXISTS TEST2;");
             statement.execute("DROP TABLE IF EXISTS DB_EVOLVE_LOCK;");
             statement.execute("DROP TABLE IF EXISTS DB_EVOLVE;");
+            statement.execute("DROP TABLE IF EXISTS DB_EVOLVE_CHECKPOINT;");
         }
     }
 
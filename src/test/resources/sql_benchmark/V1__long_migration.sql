@@ -0,0 +1,7 @@
+CREATE TABLE TEST1 (
+    ID VARCHAR(36) NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+-- simulates a long running migration, e.g. a large backfill
+${sleep};
@@ -0,0 +1,6 @@
+-- db-evolve:session SET LOCK_TIMEOUT ${lock_timeout}
+-- db-evolve:reset SET LOCK_TIMEOUT ${lock_timeout}
+-- db-evolve:session SET QUERY_TIMEOUT 0
+-- db-evolve:reset SET NOT_A_SETTING 1
+
+CREATE TABLE TEST1 (ID INT);
@@ -0,0 +1,4 @@
+-- db-evolve:session SET LOCK_TIMEOUT 4321
+-- db-evolve:reset SET LOCK_TIMEOUT ${lock_timeout}
+
+CREATE TABLE TEST1 AS SELECT LOCK_TIMEOUT() AS T;